@@ -3,9 +3,11 @@
 package com.example.ingestor.controller;
 
 import com.example.ingestor.model.ClickHouseConnectionDetails;
+import com.example.ingestor.model.ClickHouseCopyRequest;
 import com.example.ingestor.model.IngestionRequest;
 import com.example.ingestor.model.IngestionResult;
 import com.example.ingestor.model.JoinIngestionRequest;
+import com.example.ingestor.service.ClickHouseCopyService;
 import com.example.ingestor.service.ClickHouseService;
 import com.example.ingestor.service.FlatFileService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +23,8 @@ public class IngestionController {
     private ClickHouseService clickHouseService;
     @Autowired
     private FlatFileService flatFileService;
+    @Autowired
+    private ClickHouseCopyService clickHouseCopyService;
 
     @PostMapping("/configure-connection")
     public ResponseEntity<String> configureConnection(@RequestBody ClickHouseConnectionDetails details) {
@@ -100,6 +104,17 @@ public class IngestionController {
         }
     }
 
+    @PostMapping("/clickhouse-to-clickhouse")
+    public ResponseEntity<?> clickHouseToClickHouse(@RequestBody ClickHouseCopyRequest request) {
+        try {
+            return ResponseEntity.ok(clickHouseCopyService.copyTable(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/data")
     public ResponseEntity<?> getData(@RequestParam String source, @RequestParam String tableName, @RequestParam String fileName, @RequestParam String delimiter, @RequestParam(required = false) List<String> columns) {
         try {
@@ -0,0 +1,23 @@
+package com.example.ingestor.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ClickHouseCopyRequest {
+    private ClickHouseConnectionDetails source;   // Database is required
+    private ClickHouseConnectionDetails target;   // Database defaults to the source database
+    private String sourceTable;
+    private String targetTable;          // Defaults to sourceTable when empty; must be empty before the copy
+    private List<String> columns;        // Empty means all columns, in table order
+    private int parallelism;             // > 1 copies source partitions concurrently, at most 4 at a time
+
+    // useRemote runs INSERT ... SELECT FROM remote() on the target when the target can reach the source.
+    // With sourceRemoteAddress, the source username and password are sent to the target inside the query
+    // text and may show up in its query_log, server logs and processlist. Prefer sourceNamedCollection,
+    // a named collection defined on the target that holds the source host, port and credentials.
+    private boolean useRemote;
+    private String sourceRemoteAddress;  // Native-protocol address of the source as seen by the target, e.g. "ch-prod:9000"
+    private String sourceNamedCollection; // Used instead of sourceRemoteAddress when set
+}
@@ -0,0 +1,496 @@
+package com.example.ingestor.service;
+
+import com.clickhouse.client.ClickHouseClient;
+import com.clickhouse.client.ClickHouseCredentials;
+import com.clickhouse.client.ClickHouseNode;
+import com.clickhouse.client.ClickHouseProtocol;
+import com.clickhouse.client.ClickHouseResponse;
+import com.clickhouse.client.config.ClickHouseClientOption;
+import com.clickhouse.data.ClickHouseFormat;
+import com.clickhouse.data.ClickHouseRecord;
+import com.example.ingestor.model.ClickHouseConnectionDetails;
+import com.example.ingestor.model.ClickHouseCopyRequest;
+import com.example.ingestor.model.IngestionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service class for copying a table directly between two ClickHouse instances.
+ * Rows are never decoded: the source SELECT is read as RowBinary and the same byte stream
+ * is sent as the body of the target INSERT. When the target can reach the source over the
+ * native protocol, the copy is done entirely server-side with INSERT ... SELECT FROM remote().
+ *
+ * A copy is not atomic. Each INSERT commits on its own, so a failed copy can leave rows behind.
+ * The target table must therefore be empty before a copy starts, which makes a retry after a
+ * failure stop with a clear error instead of writing duplicate rows.
+ *
+ * A RowBinary stream cannot tell a source query that failed mid-stream from more row data, so
+ * every copy is checked by comparing count() on the source and the target. The source table
+ * must not change while it is being copied.
+ */
+@Service
+public class ClickHouseCopyService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickHouseCopyService.class);
+
+    // The target answers INSERT ... SELECT FROM remote() only after the whole copy has finished,
+    // so the client must wait far longer than its default 30 second socket timeout.
+    static final int REMOTE_COPY_SOCKET_TIMEOUT_MS = 24 * 60 * 60 * 1000;
+
+    // Each partition worker holds two HTTP connections from the shared client at once (the open
+    // source response and the target INSERT), so parallelism is kept within the client's
+    // default connection pool of 10.
+    static final int MAX_PARALLELISM = 4;
+
+    /**
+     * The ways a copy can be carried out, in order of preference.
+     */
+    enum CopyPath {
+        REMOTE("server-side INSERT ... SELECT FROM remote()"),
+        STREAM("client-side RowBinary stream"),
+        PARALLEL_STREAM("client-side RowBinary stream, one INSERT per partition");
+
+        private final String description;
+
+        CopyPath(String description) {
+            this.description = description;
+        }
+
+        String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Copies a table from the source connection profile to the target connection profile.
+     * Source and target tables must have matching column types, since RowBinary carries no type information.
+     * @param request Source and target profiles, table names, optional column list and copy options.
+     * @return The number of rows copied, checked against the source, and which copy path was used.
+     * @throws IllegalArgumentException If the request is incomplete or the target table is not empty.
+     * @throws IllegalStateException If the copy fails after rows may have been written, or the source and
+     *                               target row counts differ; the message names the committed partitions.
+     * @throws Exception If either server rejects a query before any rows are written.
+     */
+    public IngestionResult copyTable(ClickHouseCopyRequest request) throws Exception {
+        validate(request);
+        String targetTable = resolveTargetTable(request);
+        String columnList = buildColumnList(request.getColumns());
+        String insertTarget = buildInsertTarget(targetTable, columnList);
+
+        ClickHouseNode sourceNode = toNode(request.getSource(), request.getSource().getDatabase());
+        ClickHouseNode targetNode = toNode(request.getTarget(), resolveTargetDatabase(request));
+
+        try (ClickHouseClient client = ClickHouseClient.newInstance(ClickHouseProtocol.HTTP)) {
+            requireEmptyTarget(client, targetNode, targetTable);
+            long sourceRows = countRows(client, sourceNode, request.getSourceTable());
+
+            String remoteFailure = request.isUseRemote() ? probeRemote(client, targetNode, request) : null;
+            boolean remoteReachable = request.isUseRemote() && remoteFailure == null;
+            List<String> partitions = (!remoteReachable && request.getParallelism() > 1)
+                    ? getPartitionIds(client, sourceNode, request) : Collections.emptyList();
+            CopyPath path = choosePath(request, remoteReachable, partitions.size());
+
+            String select = "SELECT " + columnList + " FROM " + ClickHouseSql.escapeIdentifier(request.getSourceTable());
+            switch (path) {
+                case REMOTE -> copyViaRemote(client, targetNode, request, insertTarget, columnList, targetTable);
+                case STREAM -> copyWithPartialWriteNote(targetTable,
+                        () -> streamCopy(client, sourceNode, targetNode, select, insertTarget));
+                case PARALLEL_STREAM -> parallelCopy(client, sourceNode, targetNode, select, insertTarget,
+                        targetTable, partitions, effectiveParallelism(request));
+            }
+
+            String message = "ClickHouse to ClickHouse copy completed via " + path.getDescription();
+            if (remoteFailure != null) {
+                message += " (remote() was not reachable from the target: " + remoteFailure + ")";
+            }
+            long targetRows = countRows(client, targetNode, targetTable);
+            if (targetRows != sourceRows) {
+                throw new IllegalStateException("Copy into " + targetTable + " wrote " + targetRows
+                        + " rows but the source has " + sourceRows + ". Rows may be partially written;"
+                        + " truncate the target table before retrying.");
+            }
+            return new IngestionResult(targetRows, message);
+        }
+    }
+
+    /**
+     * Rejects requests that cannot be copied, before any connection is opened.
+     * @param request The copy request to check.
+     * @throws IllegalArgumentException If a required field is missing or the options conflict.
+     */
+    static void validate(ClickHouseCopyRequest request) {
+        if (request.getSource() == null || request.getTarget() == null) {
+            throw new IllegalArgumentException("Source and target connections are required");
+        }
+        if (isBlank(request.getSource().getHost()) || isBlank(request.getTarget().getHost())) {
+            throw new IllegalArgumentException("Source and target hosts are required");
+        }
+        if (isBlank(request.getSource().getDatabase())) {
+            throw new IllegalArgumentException("Source database is required");
+        }
+        if (isBlank(request.getSourceTable())) {
+            throw new IllegalArgumentException("Source table is required");
+        }
+        if (request.isUseRemote()) {
+            if (isBlank(request.getSourceRemoteAddress()) && isBlank(request.getSourceNamedCollection())) {
+                throw new IllegalArgumentException("useRemote requires sourceRemoteAddress or sourceNamedCollection");
+            }
+            if (isBlank(request.getSourceNamedCollection())
+                    && !isBlank(request.getSource().getJwtToken()) && isBlank(request.getSource().getUsername())) {
+                throw new IllegalArgumentException(
+                        "useRemote cannot forward a JWT token; set a source username or sourceNamedCollection");
+            }
+        }
+    }
+
+    /**
+     * Picks how a validated request is copied.
+     * @param request The copy request.
+     * @param remoteReachable Whether the remote() probe succeeded on the target.
+     * @param partitionCount The number of active source partitions, or 0 if they were not listed.
+     * @return The copy path to use.
+     */
+    static CopyPath choosePath(ClickHouseCopyRequest request, boolean remoteReachable, int partitionCount) {
+        if (request.isUseRemote() && remoteReachable) {
+            return CopyPath.REMOTE;
+        }
+        if (request.getParallelism() > 1 && partitionCount > 1) {
+            return CopyPath.PARALLEL_STREAM;
+        }
+        return CopyPath.STREAM;
+    }
+
+    /**
+     * Returns the number of partition workers to use, capped at MAX_PARALLELISM.
+     */
+    static int effectiveParallelism(ClickHouseCopyRequest request) {
+        return Math.min(request.getParallelism(), MAX_PARALLELISM);
+    }
+
+    /**
+     * Returns the target database, defaulting to the source database when none is given.
+     */
+    static String resolveTargetDatabase(ClickHouseCopyRequest request) {
+        return isBlank(request.getTarget().getDatabase())
+                ? request.getSource().getDatabase() : request.getTarget().getDatabase();
+    }
+
+    /**
+     * Returns the target table, defaulting to the source table name when none is given.
+     */
+    static String resolveTargetTable(ClickHouseCopyRequest request) {
+        return isBlank(request.getTargetTable()) ? request.getSourceTable() : request.getTargetTable();
+    }
+
+    /**
+     * Builds the escaped column list shared by the SELECT and the INSERT.
+     * @param columns The selected columns; null or empty selects all columns.
+     * @return A comma-separated list of escaped columns, or "*".
+     */
+    static String buildColumnList(List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            return "*";
+        }
+        return String.join(", ", columns.stream().map(ClickHouseSql::escapeIdentifier).toArray(String[]::new));
+    }
+
+    /**
+     * Builds the INSERT target, adding the column list unless all columns are copied.
+     */
+    static String buildInsertTarget(String targetTable, String columnList) {
+        return ClickHouseSql.escapeIdentifier(targetTable) + ("*".equals(columnList) ? "" : " (" + columnList + ")");
+    }
+
+    /**
+     * Builds a remote() table function call that reads a source table over the native protocol.
+     * A named collection keeps the source credentials out of the query text; otherwise the
+     * source username and password are written into the query as literals.
+     * @param request The copy request supplying the source profile, address and named collection.
+     * @param database The source database.
+     * @param table The source table.
+     * @return The remote() call, ready to follow FROM.
+     */
+    static String remoteFunction(ClickHouseCopyRequest request, String database, String table) {
+        if (!isBlank(request.getSourceNamedCollection())) {
+            return "remote(" + ClickHouseSql.escapeIdentifier(request.getSourceNamedCollection())
+                    + ", database = " + ClickHouseSql.quoteLiteral(database)
+                    + ", table = " + ClickHouseSql.quoteLiteral(table) + ")";
+        }
+        ClickHouseConnectionDetails source = request.getSource();
+        return "remote(" + ClickHouseSql.quoteLiteral(request.getSourceRemoteAddress())
+                + ", " + ClickHouseSql.quoteLiteral(database)
+                + ", " + ClickHouseSql.quoteLiteral(table)
+                + ", " + ClickHouseSql.quoteLiteral(usernameOrDefault(source))
+                + ", " + ClickHouseSql.quoteLiteral(source.getPassword() != null ? source.getPassword() : "") + ")";
+    }
+
+    /**
+     * Returns the profile's username, or ClickHouse's built-in "default" user when none is given.
+     */
+    static String usernameOrDefault(ClickHouseConnectionDetails details) {
+        return isBlank(details.getUsername()) ? "default" : details.getUsername();
+    }
+
+    /**
+     * Streams the result of a source SELECT into a target INSERT as RowBinary without decoding rows.
+     * The INSERT is committed once the target response completes.
+     * @param client The HTTP client shared by all copies of one request.
+     * @param sourceNode The server to read from.
+     * @param targetNode The server to write to.
+     * @param select The SELECT query executed on the source.
+     * @param insertTarget The escaped target table, optionally followed by a column list.
+     * @throws Exception If either query fails.
+     */
+    private void streamCopy(ClickHouseClient client, ClickHouseNode sourceNode, ClickHouseNode targetNode,
+                            String select, String insertTarget) throws Exception {
+        try (ClickHouseResponse source = client.read(sourceNode)
+                .format(ClickHouseFormat.RowBinary)
+                .query(select)
+                .executeAndWait();
+             ClickHouseResponse target = client.write(targetNode)
+                     .table(insertTarget)
+                     .format(ClickHouseFormat.RowBinary)
+                     .data(source.getInputStream())
+                     .executeAndWait()) {
+            log.debug("Copied into {}: {}", insertTarget, target.getSummary());
+        }
+    }
+
+    /**
+     * Copies each source partition with its own INSERT on a fixed thread pool.
+     * After the first failure no new partitions are started, but partitions already
+     * streaming are allowed to finish so the committed list in the error is accurate.
+     * @throws IllegalStateException If any partition fails or does not run, or the request thread is
+     *                               interrupted; names the committed and failed partitions.
+     */
+    private void parallelCopy(ClickHouseClient client, ClickHouseNode sourceNode, ClickHouseNode targetNode,
+                              String select, String insertTarget, String targetTable,
+                              List<String> partitions, int parallelism) {
+        List<String> committed = Collections.synchronizedList(new ArrayList<>());
+        Map<String, String> failed = new TreeMap<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        Map<String, Future<?>> results = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, partitions.size()));
+        try {
+            for (String partition : partitions) {
+                String partitionSelect = select + " WHERE _partition_id = " + ClickHouseSql.quoteLiteral(partition);
+                results.put(partition, executor.submit(() -> {
+                    if (aborted.get()) {
+                        return null;
+                    }
+                    try {
+                        streamCopy(client, sourceNode, targetNode, partitionSelect, insertTarget);
+                        committed.add(partition);
+                        return null;
+                    } catch (Throwable t) {
+                        aborted.set(true);
+                        throw t;
+                    }
+                }));
+            }
+            executor.shutdown();
+            for (Map.Entry<String, Future<?>> result : results.entrySet()) {
+                try {
+                    result.getValue().get();
+                } catch (ExecutionException e) {
+                    failed.put(result.getKey(), String.valueOf(e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            aborted.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Copy into " + targetTable + " was interrupted. Committed partitions: "
+                    + sorted(committed) + ". Partitions still streaming may be partially written;"
+                    + " truncate the target table before retrying.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!failed.isEmpty() || committed.size() != partitions.size()) {
+            throw new IllegalStateException("Copy into " + targetTable + " failed for partitions " + failed
+                    + ". Committed partitions: " + sorted(committed) + " of " + partitions.size()
+                    + ". Failed partitions may be partially written; truncate the target table before retrying.");
+        }
+    }
+
+    private static List<String> sorted(List<String> partitions) {
+        List<String> copy;
+        synchronized (partitions) {
+            copy = new ArrayList<>(partitions);
+        }
+        Collections.sort(copy);
+        return copy;
+    }
+
+    /**
+     * Copies the table server-side by running INSERT ... SELECT FROM remote() on the target.
+     * The query runs under its own query_id. If the client gives up on it, the query is killed on
+     * the target before the caller is told the target may be truncated, since the INSERT would
+     * otherwise keep running server-side.
+     * @throws IllegalStateException If the copy fails; says whether the INSERT could be stopped.
+     */
+    private void copyViaRemote(ClickHouseClient client, ClickHouseNode targetNode, ClickHouseCopyRequest request,
+                               String insertTarget, String columnList, String targetTable) {
+        String queryId = UUID.randomUUID().toString();
+        String query = "INSERT INTO " + insertTarget + " SELECT " + columnList + " FROM "
+                + remoteFunction(request, request.getSource().getDatabase(), request.getSourceTable());
+        try (ClickHouseResponse response = client.read(targetNode)
+                .option(ClickHouseClientOption.SOCKET_TIMEOUT, REMOTE_COPY_SOCKET_TIMEOUT_MS)
+                .query(query, queryId)
+                .executeAndWait()) {
+            log.debug("Copied into {} via remote(): {}", insertTarget, response.getSummary());
+        } catch (Exception e) {
+            String killFailure = killQuery(client, targetNode, queryId);
+            if (killFailure != null) {
+                throw new IllegalStateException("Copy into " + targetTable + " failed: " + e.getMessage()
+                        + ". The INSERT may still be running on the target as query_id " + queryId
+                        + " and could not be killed (" + killFailure + "); wait for it to finish or kill it"
+                        + " before truncating the target table.", e);
+            }
+            throw new IllegalStateException("Copy into " + targetTable + " failed: " + e.getMessage()
+                    + ". Rows may be partially written; truncate the target table before retrying.", e);
+        }
+    }
+
+    /**
+     * Stops a query on a server and waits until it has ended.
+     * @return Null if the query is no longer running, otherwise the reason the kill failed.
+     */
+    private String killQuery(ClickHouseClient client, ClickHouseNode node, String queryId) {
+        String query = "KILL QUERY WHERE query_id = " + ClickHouseSql.quoteLiteral(queryId) + " SYNC";
+        try (ClickHouseResponse response = client.read(node).query(query).executeAndWait()) {
+            return null;
+        } catch (Exception e) {
+            log.warn("Failed to kill query {} after a failed copy", queryId, e);
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Runs a single-INSERT copy, turning any failure into an error that says the target may hold partial data.
+     * @throws IllegalStateException If the copy fails.
+     */
+    private void copyWithPartialWriteNote(String targetTable, CopyStep step) {
+        try {
+            step.run();
+        } catch (Exception e) {
+            throw new IllegalStateException("Copy into " + targetTable + " failed: " + e.getMessage()
+                    + ". Rows may be partially written; truncate the target table before retrying.", e);
+        }
+    }
+
+    /**
+     * Checks whether the target server can read from the source through remote().
+     * @return Null if a trivial query through remote() succeeds on the target, otherwise the failure reason.
+     */
+    private String probeRemote(ClickHouseClient client, ClickHouseNode targetNode, ClickHouseCopyRequest request) {
+        String probe = "SELECT 1 FROM " + remoteFunction(request, "system", "one");
+        try (ClickHouseResponse response = client.read(targetNode).query(probe).executeAndWait()) {
+            return null;
+        } catch (Exception e) {
+            log.warn("remote() probe from target {} failed, falling back to client-side stream",
+                    request.getTarget().getHost(), e);
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Fails fast when the target table already has rows, so a repeated copy cannot duplicate them.
+     * @throws IllegalArgumentException If the target table is not empty.
+     * @throws Exception If the target table cannot be queried.
+     */
+    private void requireEmptyTarget(ClickHouseClient client, ClickHouseNode targetNode, String targetTable) throws Exception {
+        String query = "SELECT 1 FROM " + ClickHouseSql.escapeIdentifier(targetTable) + " LIMIT 1";
+        try (ClickHouseResponse response = client.read(targetNode)
+                .format(ClickHouseFormat.RowBinaryWithNamesAndTypes)
+                .query(query)
+                .executeAndWait()) {
+            if (response.records().iterator().hasNext()) {
+                throw new IllegalArgumentException("Target table " + targetTable
+                        + " is not empty; truncate it before copying");
+            }
+        }
+    }
+
+    /**
+     * Counts the rows in a table. On the target, which was empty before the copy, this is the number
+     * of rows copied; unlike the INSERT summary it does not include rows written to materialized views.
+     * @throws Exception If the count query fails.
+     */
+    private long countRows(ClickHouseClient client, ClickHouseNode node, String table) throws Exception {
+        String query = "SELECT count() FROM " + ClickHouseSql.escapeIdentifier(table);
+        try (ClickHouseResponse response = client.read(node)
+                .format(ClickHouseFormat.RowBinaryWithNamesAndTypes)
+                .query(query)
+                .executeAndWait()) {
+            return response.firstRecord().getValue(0).asLong();
+        }
+    }
+
+    /**
+     * Lists the active partition ids of the source table so they can be copied concurrently.
+     * @return The partition ids, or a single "all" id for unpartitioned tables.
+     * @throws Exception If the system.parts query fails.
+     */
+    private List<String> getPartitionIds(ClickHouseClient client, ClickHouseNode sourceNode, ClickHouseCopyRequest request) throws Exception {
+        List<String> partitions = new ArrayList<>();
+        String query = "SELECT DISTINCT partition_id FROM system.parts WHERE active"
+                + " AND database = " + ClickHouseSql.quoteLiteral(request.getSource().getDatabase())
+                + " AND table = " + ClickHouseSql.quoteLiteral(request.getSourceTable());
+        try (ClickHouseResponse response = client.read(sourceNode)
+                .format(ClickHouseFormat.RowBinaryWithNamesAndTypes)
+                .query(query)
+                .executeAndWait()) {
+            for (ClickHouseRecord record : response.records()) {
+                partitions.add(record.getValue(0).asString());
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Builds an HTTP client node from UI connection details.
+     * A JWT token takes precedence over username and password, as in ClickHouseService.
+     * @param details Host, port and credentials of one connection profile.
+     * @param database The database that unqualified table names refer to.
+     * @return The node to send requests to.
+     */
+    private ClickHouseNode toNode(ClickHouseConnectionDetails details, String database) {
+        ClickHouseCredentials credentials = !isBlank(details.getJwtToken())
+                ? ClickHouseCredentials.fromAccessToken(details.getJwtToken())
+                : ClickHouseCredentials.fromUserAndPassword(
+                        usernameOrDefault(details),
+                        details.getPassword() != null ? details.getPassword() : "");
+        return ClickHouseNode.builder()
+                .host(details.getHost())
+                .port(ClickHouseProtocol.HTTP, details.getPort())
+                .database(database)
+                .credentials(credentials)
+                .build();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * A single copy step that may throw, wrapped by copyWithPartialWriteNote.
+     */
+    @FunctionalInterface
+    private interface CopyStep {
+        void run() throws Exception;
+    }
+}
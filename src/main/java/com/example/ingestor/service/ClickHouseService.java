@@ -144,7 +144,7 @@ public class ClickHouseService {
         List<String> columns = new ArrayList<>();
         try (Connection conn = getEffectiveDataSource().getConnection();
              Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("DESCRIBE TABLE " + escapeIdentifier(tableName))) { // Add basic escaping
+             ResultSet rs = stmt.executeQuery("DESCRIBE TABLE " + ClickHouseSql.escapeIdentifier(tableName))) { // Add basic escaping
             while (rs.next()) {
                 columns.add(rs.getString("name"));
             }
@@ -164,8 +164,8 @@ public class ClickHouseService {
      */
     public long clickHouseToFlatFile(String tableName, List<String> columns, String fileName, String delimiter) throws Exception {
         if (columns.isEmpty()) throw new IllegalArgumentException("No columns selected");
-        String query = "SELECT " + String.join(", ", columns.stream().map(this::escapeIdentifier).toArray(String[]::new))
-                + " FROM " + escapeIdentifier(tableName);
+        String query = "SELECT " + String.join(", ", columns.stream().map(ClickHouseSql::escapeIdentifier).toArray(String[]::new))
+                + " FROM " + ClickHouseSql.escapeIdentifier(tableName);
         try (Connection conn = getEffectiveDataSource().getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query);
@@ -203,10 +203,10 @@ public class ClickHouseService {
      */
     public long clickHouseJoinToFlatFile(List<String> tables, String joinCondition, List<String> columns, String fileName, String delimiter) throws Exception {
         if (tables.size() < 2) throw new IllegalArgumentException("At least two tables required for join");
-        String query = "SELECT " + String.join(", ", columns.stream().map(this::escapeIdentifier).toArray(String[]::new))
-                + " FROM " + escapeIdentifier(tables.get(0));
+        String query = "SELECT " + String.join(", ", columns.stream().map(ClickHouseSql::escapeIdentifier).toArray(String[]::new))
+                + " FROM " + ClickHouseSql.escapeIdentifier(tables.get(0));
         for (int i = 1; i < tables.size(); i++) {
-            query += " JOIN " + escapeIdentifier(tables.get(i)) + " ON " + joinCondition;
+            query += " JOIN " + ClickHouseSql.escapeIdentifier(tables.get(i)) + " ON " + joinCondition;
         }
         try (Connection conn = getEffectiveDataSource().getConnection();
              Statement stmt = conn.createStatement();
@@ -252,16 +252,4 @@ public class ClickHouseService {
     }
 
 
-    /**
-     * Escapes an identifier (e.g., table or column name) to prevent SQL injection.
-     * Wraps the identifier in backticks.
-     * @param identifier The identifier to escape.
-     * @return The escaped identifier.
-     */
-    private String escapeIdentifier(String identifier) {
-        return "`" + identifier.replace("`", "``") + "`";
-    }
-
-
-
 }
\ No newline at end of file
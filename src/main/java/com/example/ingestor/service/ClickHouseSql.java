@@ -0,0 +1,31 @@
+package com.example.ingestor.service;
+
+/**
+ * SQL text helpers shared by the ClickHouse services.
+ * Used wherever user input is spliced into a query that cannot take bound parameters.
+ */
+final class ClickHouseSql {
+
+    private ClickHouseSql() {
+    }
+
+    /**
+     * Escapes an identifier (e.g., table or column name) to prevent SQL injection.
+     * Wraps the identifier in backticks.
+     * @param identifier The identifier to escape.
+     * @return The escaped identifier.
+     */
+    static String escapeIdentifier(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    /**
+     * Quotes a string literal (e.g., a partition id or a remote() argument).
+     * Backslashes and single quotes are escaped with a backslash, as ClickHouse expects.
+     * @param value The raw string value.
+     * @return The quoted literal.
+     */
+    static String quoteLiteral(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+}
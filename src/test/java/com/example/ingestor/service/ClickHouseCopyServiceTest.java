@@ -0,0 +1,175 @@
+package com.example.ingestor.service;
+
+import com.example.ingestor.model.ClickHouseConnectionDetails;
+import com.example.ingestor.model.ClickHouseCopyRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClickHouseCopyServiceTest {
+
+	private static ClickHouseConnectionDetails profile(String host, String database) {
+		ClickHouseConnectionDetails details = new ClickHouseConnectionDetails();
+		details.setHost(host);
+		details.setPort(8123);
+		details.setDatabase(database);
+		details.setUsername("ingestor_user");
+		details.setPassword("ingestor_pass");
+		return details;
+	}
+
+	private static ClickHouseCopyRequest request() {
+		ClickHouseCopyRequest request = new ClickHouseCopyRequest();
+		request.setSource(profile("source", "uk_price_paid"));
+		request.setTarget(profile("target", "uk_price_paid"));
+		request.setSourceTable("uk_price_paid");
+		return request;
+	}
+
+	@Test
+	void validateAcceptsMinimalRequest() {
+		assertDoesNotThrow(() -> ClickHouseCopyService.validate(request()));
+	}
+
+	@Test
+	void validateRejectsMissingSourceOrTarget() {
+		ClickHouseCopyRequest noSource = request();
+		noSource.setSource(null);
+		assertThrows(IllegalArgumentException.class, () -> ClickHouseCopyService.validate(noSource));
+
+		ClickHouseCopyRequest noTarget = request();
+		noTarget.setTarget(null);
+		assertThrows(IllegalArgumentException.class, () -> ClickHouseCopyService.validate(noTarget));
+	}
+
+	@Test
+	void validateRejectsMissingSourceDatabaseAndTable() {
+		ClickHouseCopyRequest noDatabase = request();
+		noDatabase.getSource().setDatabase(null);
+		assertThrows(IllegalArgumentException.class, () -> ClickHouseCopyService.validate(noDatabase));
+
+		ClickHouseCopyRequest noTable = request();
+		noTable.setSourceTable(" ");
+		assertThrows(IllegalArgumentException.class, () -> ClickHouseCopyService.validate(noTable));
+	}
+
+	@Test
+	void targetDatabaseDefaultsToSourceDatabase() {
+		ClickHouseCopyRequest request = request();
+		request.getTarget().setDatabase(null);
+		assertDoesNotThrow(() -> ClickHouseCopyService.validate(request));
+		assertEquals("uk_price_paid", ClickHouseCopyService.resolveTargetDatabase(request));
+
+		request.getTarget().setDatabase("staging");
+		assertEquals("staging", ClickHouseCopyService.resolveTargetDatabase(request));
+	}
+
+	@Test
+	void validateRejectsUseRemoteWithoutAddressOrNamedCollection() {
+		ClickHouseCopyRequest request = request();
+		request.setUseRemote(true);
+		assertThrows(IllegalArgumentException.class, () -> ClickHouseCopyService.validate(request));
+
+		request.setSourceNamedCollection("prod_source");
+		assertDoesNotThrow(() -> ClickHouseCopyService.validate(request));
+	}
+
+	@Test
+	void validateRejectsUseRemoteWithJwtOnlySource() {
+		ClickHouseCopyRequest request = request();
+		request.setUseRemote(true);
+		request.setSourceRemoteAddress("source:9000");
+		request.getSource().setUsername(null);
+		request.getSource().setJwtToken("token");
+		assertThrows(IllegalArgumentException.class, () -> ClickHouseCopyService.validate(request));
+	}
+
+	@Test
+	void targetTableDefaultsToSourceTable() {
+		ClickHouseCopyRequest request = request();
+		assertEquals("uk_price_paid", ClickHouseCopyService.resolveTargetTable(request));
+
+		request.setTargetTable("uk_price_paid_copy");
+		assertEquals("uk_price_paid_copy", ClickHouseCopyService.resolveTargetTable(request));
+	}
+
+	@Test
+	void emptyColumnListSelectsAllColumns() {
+		assertEquals("*", ClickHouseCopyService.buildColumnList(null));
+		assertEquals("*", ClickHouseCopyService.buildColumnList(List.of()));
+		assertEquals("`uk_price_paid`", ClickHouseCopyService.buildInsertTarget("uk_price_paid", "*"));
+	}
+
+	@Test
+	void explicitColumnsAreEscapedAndAddedToInsert() {
+		String columns = ClickHouseCopyService.buildColumnList(List.of("price", "odd`name"));
+		assertEquals("`price`, `odd``name`", columns);
+		assertEquals("`t` (`price`, `odd``name`)", ClickHouseCopyService.buildInsertTarget("t", columns));
+	}
+
+	@Test
+	void remoteFunctionUsesAddressAndCredentials() {
+		ClickHouseCopyRequest request = request();
+		request.setSourceRemoteAddress("source:9000");
+		request.getSource().setPassword("p'w");
+		assertEquals("remote('source:9000', 'db', 't', 'ingestor_user', 'p\\'w')",
+				ClickHouseCopyService.remoteFunction(request, "db", "t"));
+
+		request.getSource().setUsername(null);
+		request.getSource().setPassword(null);
+		assertEquals("remote('source:9000', 'db', 't', 'default', '')",
+				ClickHouseCopyService.remoteFunction(request, "db", "t"));
+	}
+
+	@Test
+	void remoteFunctionPrefersNamedCollection() {
+		ClickHouseCopyRequest request = request();
+		request.setSourceRemoteAddress("source:9000");
+		request.setSourceNamedCollection("prod_source");
+		assertEquals("remote(`prod_source`, database = 'db', table = 't')",
+				ClickHouseCopyService.remoteFunction(request, "db", "t"));
+	}
+
+	@Test
+	void parallelismIsCappedAtMaximum() {
+		ClickHouseCopyRequest request = request();
+		request.setParallelism(2);
+		assertEquals(2, ClickHouseCopyService.effectiveParallelism(request));
+
+		request.setParallelism(64);
+		assertEquals(ClickHouseCopyService.MAX_PARALLELISM, ClickHouseCopyService.effectiveParallelism(request));
+	}
+
+	@Test
+	void choosePathPrefersReachableRemote() {
+		ClickHouseCopyRequest request = request();
+		request.setUseRemote(true);
+		request.setParallelism(4);
+		assertEquals(ClickHouseCopyService.CopyPath.REMOTE, ClickHouseCopyService.choosePath(request, true, 0));
+	}
+
+	@Test
+	void choosePathFallsBackWhenRemoteUnreachable() {
+		ClickHouseCopyRequest request = request();
+		request.setUseRemote(true);
+		assertEquals(ClickHouseCopyService.CopyPath.STREAM, ClickHouseCopyService.choosePath(request, false, 0));
+
+		request.setParallelism(4);
+		assertEquals(ClickHouseCopyService.CopyPath.PARALLEL_STREAM, ClickHouseCopyService.choosePath(request, false, 3));
+	}
+
+	@Test
+	void choosePathStreamsSeriallyWithoutParallelismOrPartitions() {
+		ClickHouseCopyRequest request = request();
+		assertEquals(ClickHouseCopyService.CopyPath.STREAM, ClickHouseCopyService.choosePath(request, false, 5));
+
+		request.setParallelism(4);
+		assertEquals(ClickHouseCopyService.CopyPath.STREAM, ClickHouseCopyService.choosePath(request, false, 1));
+		assertEquals(ClickHouseCopyService.CopyPath.PARALLEL_STREAM, ClickHouseCopyService.choosePath(request, false, 2));
+	}
+
+}
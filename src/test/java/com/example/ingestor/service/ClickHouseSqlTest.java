@@ -0,0 +1,23 @@
+package com.example.ingestor.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClickHouseSqlTest {
+
+	@Test
+	void escapeIdentifierWrapsAndDoublesBackticks() {
+		assertEquals("`orders`", ClickHouseSql.escapeIdentifier("orders"));
+		assertEquals("`a``b`", ClickHouseSql.escapeIdentifier("a`b"));
+	}
+
+	@Test
+	void quoteLiteralEscapesQuotesAndBackslashes() {
+		assertEquals("'plain'", ClickHouseSql.quoteLiteral("plain"));
+		assertEquals("'it\\'s'", ClickHouseSql.quoteLiteral("it's"));
+		assertEquals("'a\\\\b'", ClickHouseSql.quoteLiteral("a\\b"));
+		assertEquals("'\\\\\\''", ClickHouseSql.quoteLiteral("\\'"));
+	}
+
+}